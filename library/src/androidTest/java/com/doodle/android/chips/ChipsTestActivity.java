@@ -0,0 +1,23 @@
+package com.doodle.android.chips;
+
+import android.app.Activity;
+import android.os.Bundle;
+
+/**
+ * Hosts a {@link ChipsView} attached to a window.
+ */
+public class ChipsTestActivity extends Activity {
+
+    private ChipsView mChipsView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mChipsView = new ChipsView(this);
+        setContentView(mChipsView);
+    }
+
+    public ChipsView getChipsView() {
+        return mChipsView;
+    }
+}
@@ -0,0 +1,85 @@
+package com.doodle.android.chips;
+
+import android.os.Debug;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
+
+public class ChipsViewTest extends InstrumentationTestCase {
+
+    private static final int WIDTH = 1080;
+    private static final int ALLOCATION_TOLERANCE = 16;
+
+    private ChipsView mChipsView;
+
+    @UiThreadTest
+    public void testAddSameChipTwice() {
+        createChipsView();
+        ChipsView.Chip chip = new ChipsView.Chip("Jane Doe", null, "jane@example.com");
+
+        mChipsView.addChip(chip);
+        mChipsView.addChip(chip);
+        layout();
+
+        assertEquals(2, mChipsView.getChips().size());
+        assertSame(mChipsView.getChips().get(0), mChipsView.getChips().get(1));
+    }
+
+    /**
+     * Backspace must neither rebuild all chips nor allocate per chip, so the allocations of a
+     * keystroke may not grow with the number of chips.
+     */
+    @UiThreadTest
+    public void testBackspaceAllocationsDoNotGrowWithChipCount() {
+        int fewChipsAllocations = countBackspaceAllocations(10);
+        int manyChipsAllocations = countBackspaceAllocations(200);
+
+        assertTrue("allocations per backspace: " + fewChipsAllocations + " with 10 chips, " + manyChipsAllocations + " with 200 chips",
+                manyChipsAllocations <= fewChipsAllocations + ALLOCATION_TOLERANCE);
+    }
+
+    /**
+     * @return the allocations of the two backspace keystrokes selecting and deleting the last chip
+     */
+    @SuppressWarnings("deprecation")
+    private int countBackspaceAllocations(int chipCount) {
+        createChipsView();
+        for (int i = 0; i < chipCount; i++) {
+            mChipsView.addChip(new ChipsView.Chip("Recipient " + i, null, i));
+        }
+        layout();
+        InputConnection inputConnection = mChipsView.getEditText().onCreateInputConnection(new EditorInfo());
+
+        // warm up, deleting a chip moves its label into the text
+        inputConnection.deleteSurroundingText(1, 0);
+        inputConnection.deleteSurroundingText(1, 0);
+        mChipsView.getEditText().setText("");
+
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            inputConnection.deleteSurroundingText(1, 0);
+            inputConnection.deleteSurroundingText(1, 0);
+            int allocations = Debug.getThreadAllocCount();
+
+            assertEquals(chipCount - 2, mChipsView.getChips().size());
+            return allocations;
+        } finally {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    private void createChipsView() {
+        mChipsView = new ChipsView(new ContextThemeWrapper(getInstrumentation().getTargetContext(), R.style.AppTheme));
+        layout();
+    }
+
+    private void layout() {
+        mChipsView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        mChipsView.layout(0, 0, WIDTH, mChipsView.getMeasuredHeight());
+    }
+}
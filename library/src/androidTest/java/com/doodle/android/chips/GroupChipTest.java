@@ -0,0 +1,222 @@
+package com.doodle.android.chips;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.ViewGroup;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.InputConnection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GroupChipTest extends ActivityInstrumentationTestCase2<ChipsTestActivity> {
+
+    private static final ChipsView.Chip ALICE = new ChipsView.Chip("Alice", null, "alice@example.com");
+    private static final ChipsView.Chip BOB = new ChipsView.Chip("Bob", null, "bob@example.com");
+    private static final ChipsView.Chip CAROL = new ChipsView.Chip("Carol", null, "carol@example.com");
+    private static final ChipsView.Chip DAVE = new ChipsView.Chip("Dave", null, "dave@example.com");
+
+    private ChipsView mChipsView;
+    private FakeMemberResolver mResolver;
+    private ChipsView.GroupChip mGroupChip;
+
+    public GroupChipTest() {
+        super(ChipsTestActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mChipsView = getActivity().getChipsView();
+        mResolver = new FakeMemberResolver();
+        mGroupChip = new ChipsView.GroupChip("Team", null, "team@example.com", 2, mResolver);
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testResolvesOnceForAllCallbacks() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        mGroupChip.resolveMembers(first);
+        mGroupChip.resolveMembers(second);
+        mResolver.succeed(BOB, CAROL);
+
+        assertEquals(1, mResolver.mResolveCount);
+        assertEquals(Arrays.asList(BOB, CAROL), first.mMembers);
+        assertEquals(Arrays.asList(BOB, CAROL), second.mMembers);
+
+        RecordingCallback cached = new RecordingCallback();
+        mGroupChip.resolveMembers(cached);
+
+        assertEquals(1, mResolver.mResolveCount);
+        assertEquals(Arrays.asList(BOB, CAROL), cached.mMembers);
+    }
+
+    public void testRetriesAfterFailure() {
+        RecordingCallback failing = new RecordingCallback();
+
+        mGroupChip.resolveMembers(failing);
+        mResolver.fail();
+
+        assertTrue(failing.mFailed);
+        assertNull(failing.mMembers);
+
+        RecordingCallback retry = new RecordingCallback();
+        mGroupChip.resolveMembers(retry);
+        mResolver.succeed(BOB, CAROL);
+
+        assertEquals(2, mResolver.mResolveCount);
+        assertEquals(Arrays.asList(BOB, CAROL), retry.mMembers);
+        assertNull(failing.mMembers);
+    }
+
+    public void testCancelledCallbackIsNotNotified() {
+        RecordingCallback cancelled = new RecordingCallback();
+        RecordingCallback other = new RecordingCallback();
+
+        mGroupChip.resolveMembers(cancelled);
+        mGroupChip.cancelResolve(cancelled);
+        mGroupChip.resolveMembers(other);
+        mResolver.succeed(BOB, CAROL);
+
+        assertEquals(1, mResolver.mResolveCount);
+        assertNull(cancelled.mMembers);
+        assertEquals(Arrays.asList(BOB, CAROL), other.mMembers);
+    }
+
+    public void testExpandReplacesGroupWithMembers() {
+        addChips(ALICE, mGroupChip, DAVE);
+        assertEquals(4, mChipsView.getRecipientCount());
+
+        expandGroupChip();
+        mResolver.succeed(BOB, CAROL);
+        getInstrumentation().waitForIdleSync();
+
+        assertEquals(Arrays.asList(ALICE, BOB, CAROL, DAVE), mChipsView.getChips());
+        assertEquals(4, mChipsView.getRecipientCount());
+    }
+
+    public void testExpandKeepsSelectionAfterGroup() {
+        addChips(ALICE, mGroupChip, DAVE);
+        final InputConnection inputConnection = createInputConnection();
+
+        // selects the last chip
+        backspace(inputConnection);
+        expandGroupChip();
+        mResolver.succeed(BOB, CAROL);
+        getInstrumentation().waitForIdleSync();
+        // deletes the selected chip
+        backspace(inputConnection);
+
+        assertEquals(Arrays.asList(ALICE, BOB, CAROL), mChipsView.getChips());
+    }
+
+    public void testRepeatedExpandIsIgnored() {
+        addChips(ALICE, mGroupChip, mGroupChip);
+
+        // the repeat must not expand the other occurrence of the group
+        expandGroupChip();
+        expandGroupChip();
+        mResolver.succeed(BOB, CAROL);
+        getInstrumentation().waitForIdleSync();
+
+        assertEquals(Arrays.asList(ALICE, BOB, CAROL, mGroupChip), mChipsView.getChips());
+    }
+
+    public void testExpandAfterDetachIsDropped() {
+        addChips(ALICE, mGroupChip);
+
+        expandGroupChip();
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ((ViewGroup) mChipsView.getParent()).removeView(mChipsView);
+            }
+        });
+        mResolver.succeed(BOB, CAROL);
+        getInstrumentation().waitForIdleSync();
+
+        assertEquals(Arrays.asList(ALICE, mGroupChip), mChipsView.getChips());
+    }
+
+    private void addChips(final ChipsView.Chip... chips) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (ChipsView.Chip chip : chips) {
+                    mChipsView.addChip(chip);
+                }
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private void expandGroupChip() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mChipsView.expandGroupChip(mGroupChip);
+            }
+        });
+    }
+
+    private InputConnection createInputConnection() {
+        final InputConnection[] inputConnection = new InputConnection[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                inputConnection[0] = mChipsView.getEditText().onCreateInputConnection(new EditorInfo());
+            }
+        });
+        return inputConnection[0];
+    }
+
+    private void backspace(final InputConnection inputConnection) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                inputConnection.deleteSurroundingText(1, 0);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    /**
+     * Completes the resolutions when told to, on the calling thread.
+     */
+    private static class FakeMemberResolver implements ChipsView.MemberResolver {
+
+        private final List<ChipsView.MembersCallback> mCallbacks = new ArrayList<>();
+        private int mResolveCount;
+
+        @Override
+        public void resolveMembers(ChipsView.GroupChip groupChip, ChipsView.MembersCallback callback) {
+            mResolveCount++;
+            mCallbacks.add(callback);
+        }
+
+        void succeed(ChipsView.Chip... members) {
+            mCallbacks.get(mCallbacks.size() - 1).onMembersResolved(Arrays.asList(members));
+        }
+
+        void fail() {
+            mCallbacks.get(mCallbacks.size() - 1).onMembersFailed();
+        }
+    }
+
+    private static class RecordingCallback implements ChipsView.MembersCallback {
+
+        private List<ChipsView.Chip> mMembers;
+        private boolean mFailed;
+
+        @Override
+        public void onMembersResolved(List<ChipsView.Chip> members) {
+            mMembers = members;
+        }
+
+        @Override
+        public void onMembersFailed() {
+            mFailed = true;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2016 Doodle AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doodle.android.chips;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.graphics.drawable.DrawableCompat;
+import android.util.AttributeSet;
+
+/**
+ * Chip styling shared by {@link ChipsView} and {@link ChipsDisplayView}, read from the
+ * {@code ChipsView} styleable attributes.
+ */
+class ChipStyle {
+
+    //<editor-fold desc="Resources">
+    private int mChipsBgRes = R.drawable.chip_background;
+    //</editor-fold>
+
+    //<editor-fold desc="Attributes">
+    private int mChipsPlaceholderResId;
+    private int mChipsDeleteResId;
+
+    private ColorStateList mChipsColorStateList;
+    private ColorStateList mChipsBgColorStateList;
+    private ColorStateList mChipsTextColorStateList;
+    //</editor-fold>
+
+    ChipStyle(Context context, AttributeSet attrs) {
+        TypedArray a = context.getTheme().obtainStyledAttributes(
+                attrs,
+                R.styleable.ChipsView,
+                0, 0);
+        try {
+            int chipsColor = a.getColor(R.styleable.ChipsView_cv_color,
+                    ContextCompat.getColor(context, R.color.base30));
+            int chipsColorClicked = a.getColor(R.styleable.ChipsView_cv_color_clicked,
+                    ContextCompat.getColor(context, R.color.colorPrimaryDark));
+
+            int chipsBgColor = a.getColor(R.styleable.ChipsView_cv_bg_color,
+                    ContextCompat.getColor(context, R.color.base10));
+            int chipsBgColorClicked = a.getColor(R.styleable.ChipsView_cv_bg_color_clicked,
+                    ContextCompat.getColor(context, R.color.blue));
+
+            int chipsTextColor = a.getColor(R.styleable.ChipsView_cv_text_color,
+                    Color.BLACK);
+            int chipsTextColorClicked = a.getColor(R.styleable.ChipsView_cv_text_color_clicked,
+                    Color.WHITE);
+
+            mChipsColorStateList = createSelectableColorStateList(chipsColor, chipsColorClicked);
+            mChipsBgColorStateList = createSelectableColorStateList(chipsBgColor, chipsBgColorClicked);
+            mChipsTextColorStateList = createSelectableColorStateList(chipsTextColor, chipsTextColorClicked);
+
+            mChipsPlaceholderResId = a.getResourceId(R.styleable.ChipsView_cv_icon_placeholder,
+                    R.drawable.ic_person_24dp);
+            mChipsDeleteResId = a.getResourceId(R.styleable.ChipsView_cv_icon_delete,
+                    R.drawable.ic_close_24dp);
+        } finally {
+            a.recycle();
+        }
+    }
+
+    int getPlaceholderResId() {
+        return mChipsPlaceholderResId;
+    }
+
+    int getDeleteResId() {
+        return mChipsDeleteResId;
+    }
+
+    ColorStateList getTextColor() {
+        return mChipsTextColorStateList;
+    }
+
+    Drawable createBackground(Context context) {
+        return createSelectableDrawable(context, mChipsBgRes, mChipsBgColorStateList);
+    }
+
+    Drawable createIconBackground(Context context) {
+        return createSelectableDrawable(context, R.drawable.circle, mChipsColorStateList);
+    }
+
+    private static ColorStateList createSelectableColorStateList(int color, int selectedColor) {
+        return new ColorStateList(
+                new int[][]{new int[]{android.R.attr.state_selected}, new int[]{}},
+                new int[]{selectedColor, color});
+    }
+
+    /**
+     * mutated copy of the given drawable which is tinted according to the view's selected state
+     */
+    private static Drawable createSelectableDrawable(Context context, int drawableResId, ColorStateList tint) {
+        Drawable drawable = DrawableCompat.wrap(ContextCompat.getDrawable(context, drawableResId).mutate());
+        DrawableCompat.setTintList(drawable, tint);
+        DrawableCompat.setTintMode(drawable, PorterDuff.Mode.SRC_ATOP);
+        return drawable;
+    }
+}
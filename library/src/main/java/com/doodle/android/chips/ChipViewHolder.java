@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2016 Doodle AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doodle.android.chips;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.RelativeLayout;
+import android.widget.TextView;
+
+import com.bumptech.glide.Glide;
+
+/**
+ * Binds a {@link ChipsView.Chip} to its inflated view, chips themselves don't hold any views.
+ */
+class ChipViewHolder implements View.OnClickListener {
+
+    private final Context mContext;
+
+    private final RelativeLayout mView;
+    private final View mIconWrapper;
+    private final TextView mTextView;
+
+    private final ImageView mAvatarView;
+    private final ImageView mPersonIcon;
+    private final ImageView mCloseIcon;
+
+    private final ImageView mErrorIcon;
+
+    private ChipsView.Chip mChip;
+    private boolean mIsSelected;
+    private boolean mIsAvatarReleased;
+    private OnChipClickListener mOnChipClickListener;
+
+    ChipViewHolder(Context context, ChipStyle style) {
+        mContext = context;
+        float density = context.getResources().getDisplayMetrics().density;
+
+        mView = (RelativeLayout) View.inflate(context, R.layout.chips_view, null);
+        mView.setLayoutParams(new RelativeLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, (int) (ChipsView.CHIP_HEIGHT * density)));
+        mAvatarView = (ImageView) mView.findViewById(R.id.ri_ch_avatar);
+        mIconWrapper = mView.findViewById(R.id.rl_ch_avatar);
+        mTextView = (TextView) mView.findViewById(R.id.tv_ch_name);
+        mPersonIcon = (ImageView) mView.findViewById(R.id.iv_ch_person);
+        mCloseIcon = (ImageView) mView.findViewById(R.id.iv_ch_close);
+
+        mErrorIcon = (ImageView) mView.findViewById(R.id.iv_ch_error);
+
+        // set inital res & attrs, colors follow the selected state of the chip's view
+        mView.setBackground(style.createBackground(context));
+        mIconWrapper.setBackground(style.createIconBackground(context));
+        mTextView.setTextColor(style.getTextColor());
+
+        // set icon resources
+        mPersonIcon.setBackgroundResource(style.getPlaceholderResId());
+        mCloseIcon.setBackgroundResource(style.getDeleteResId());
+    }
+
+    View getView() {
+        return mView;
+    }
+
+    ChipsView.Chip getChip() {
+        return mChip;
+    }
+
+    void setOnChipClickListener(OnChipClickListener onChipClickListener) {
+        mOnChipClickListener = onChipClickListener;
+        mView.setOnClickListener(onChipClickListener != null ? this : null);
+        mIconWrapper.setOnClickListener(onChipClickListener != null ? this : null);
+    }
+
+    void bind(ChipsView.Chip chip, boolean isSelected) {
+        boolean animate = mChip == chip;
+        if (mChip != chip) {
+            mChip = chip;
+            mTextView.setText(chip.getLabel());
+            loadAvatar();
+        } else if (mIsAvatarReleased) {
+            loadAvatar();
+        }
+        if (animate && mIsSelected == isSelected) {
+            return;
+        }
+        mIsSelected = isSelected;
+
+        // dispatched to the children, switches background, icon wrapper and text color
+        mView.setSelected(isSelected);
+        if (isSelected) {
+            if (animate) {
+                mPersonIcon.animate().alpha(0.0f).setDuration(200).start();
+                mAvatarView.animate().alpha(0.0f).setDuration(200).start();
+                mCloseIcon.animate().alpha(1f).setDuration(200).setStartDelay(100).start();
+            } else {
+                cancelAnimations();
+                mPersonIcon.setAlpha(0.0f);
+                mAvatarView.setAlpha(0.0f);
+                mCloseIcon.setAlpha(1f);
+            }
+
+        } else {
+
+            mErrorIcon.setVisibility(View.GONE);
+
+            if (animate) {
+                mPersonIcon.animate().alpha(0.3f).setDuration(200).setStartDelay(100).start();
+                mAvatarView.animate().alpha(1f).setDuration(200).setStartDelay(100).start();
+                mCloseIcon.animate().alpha(0.0f).setDuration(200).start();
+            } else {
+                cancelAnimations();
+                mPersonIcon.setAlpha(0.3f);
+                mAvatarView.setAlpha(1f);
+                mCloseIcon.setAlpha(0.0f);
+            }
+        }
+    }
+
+    /**
+     * Clears the avatar so its bitmap can be reclaimed, it is loaded again on the next {@link #bind}.
+     *
+     * @return true if there was an avatar to release
+     */
+    boolean releaseAvatar() {
+        if (mChip != null && mChip.getPhotoUri() != null && !mIsAvatarReleased) {
+            Glide.clear(mAvatarView);
+            mPersonIcon.setVisibility(View.VISIBLE);
+            mIsAvatarReleased = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops the chip and its avatar, e.g. before the holder is pooled for reuse.
+     */
+    void unbind() {
+        Glide.clear(mAvatarView);
+        mChip = null;
+        mIsAvatarReleased = false;
+    }
+
+    private void loadAvatar() {
+        mIsAvatarReleased = false;
+        if (mChip.getPhotoUri() != null) {
+            Glide.with(mContext)
+                    .load(mChip.getPhotoUri())
+                    .into(mAvatarView);
+            //TODO on glide success
+            mPersonIcon.setVisibility(View.INVISIBLE);
+        } else {
+            // the holder may have been recycled from a chip with an avatar
+            Glide.clear(mAvatarView);
+            mPersonIcon.setVisibility(View.VISIBLE);
+        }
+    }
+
+    private void cancelAnimations() {
+        mPersonIcon.animate().cancel();
+        mAvatarView.animate().cancel();
+        mCloseIcon.animate().cancel();
+    }
+
+    @Override
+    public void onClick(View v) {
+        if (mOnChipClickListener != null && mChip != null) {
+            mOnChipClickListener.onChipClick(this, v == mView);
+        }
+    }
+
+    interface OnChipClickListener {
+        void onChipClick(ChipViewHolder holder, boolean nameClicked);
+    }
+}
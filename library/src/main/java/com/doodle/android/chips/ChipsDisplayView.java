@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 Doodle AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doodle.android.chips;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Display-only counterpart of {@link ChipsView}, e.g. for list rows. Uses the same chip styling
+ * attributes but has no input, focus or selection handling and lays its chips out directly
+ * without any intermediate row layouts. Chip views are reused when binding a new list of chips.
+ */
+public class ChipsDisplayView extends ViewGroup {
+
+    //<editor-fold desc="Attributes">
+    private int mVerticalSpacing;
+    //</editor-fold>
+
+    //<editor-fold desc="Private Fields">
+    private int mChipHeight; // px
+    private ChipStyle mChipStyle;
+    private List<ChipViewHolder> mChipViewHolders = new ArrayList<>();
+    private int mChipCount;
+    //</editor-fold>
+
+    //<editor-fold desc="Constructors">
+    public ChipsDisplayView(Context context) {
+        this(context, null);
+    }
+
+    public ChipsDisplayView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context, attrs);
+    }
+
+    public ChipsDisplayView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init(context, attrs);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public ChipsDisplayView(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        init(context, attrs);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Initialization">
+    private void init(Context context, AttributeSet attrs) {
+        float density = getResources().getDisplayMetrics().density;
+        mChipHeight = (int) (ChipsView.CHIP_HEIGHT * density);
+
+        TypedArray a = context.getTheme().obtainStyledAttributes(
+                attrs,
+                R.styleable.ChipsView,
+                0, 0);
+        try {
+            mVerticalSpacing = a.getDimensionPixelSize(R.styleable.ChipsView_cv_vertical_spacing, (int) (ChipsView.DEFAULT_VERTICAL_SPACING * density));
+        } finally {
+            a.recycle();
+        }
+        mChipStyle = new ChipStyle(context, attrs);
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="Public Methods">
+
+    /**
+     * Replaces the displayed chips, already inflated chip views are rebound instead of recreated.
+     */
+    public void setChips(List<ChipsView.Chip> chips) {
+        int count = chips.size();
+        for (int i = 0; i < count; i++) {
+            ChipViewHolder holder;
+            if (i < mChipViewHolders.size()) {
+                holder = mChipViewHolders.get(i);
+            } else {
+                holder = new ChipViewHolder(getContext(), mChipStyle);
+                mChipViewHolders.add(holder);
+                addViewInLayout(holder.getView(), -1, holder.getView().getLayoutParams(), true);
+            }
+            holder.bind(chips.get(i), false);
+            holder.getView().setVisibility(VISIBLE);
+        }
+        // keep surplus views for the next bind
+        for (int i = count; i < mChipViewHolders.size(); i++) {
+            mChipViewHolders.get(i).getView().setVisibility(GONE);
+        }
+        mChipCount = count;
+        requestLayout();
+        invalidate();
+    }
+
+    public int getChipCount() {
+        return mChipCount;
+    }
+    //</editor-fold>
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        int maxLineWidth = widthMode == MeasureSpec.UNSPECIFIED
+                ? Integer.MAX_VALUE
+                : MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight();
+        int childWidthSpec = widthMode == MeasureSpec.UNSPECIFIED
+                ? MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED)
+                : MeasureSpec.makeMeasureSpec(Math.max(maxLineWidth, 0), MeasureSpec.AT_MOST);
+        int childHeightSpec = MeasureSpec.makeMeasureSpec(mChipHeight, MeasureSpec.EXACTLY);
+
+        int lineWidth = 0;
+        int maxWidth = 0;
+        int rows = mChipCount > 0 ? 1 : 0;
+        for (int i = 0; i < mChipCount; i++) {
+            View child = getChildAt(i);
+            child.measure(childWidthSpec, childHeightSpec);
+            int childWidth = child.getMeasuredWidth();
+            if (lineWidth > 0 && lineWidth + childWidth > maxLineWidth) {
+                rows++;
+                lineWidth = 0;
+            }
+            lineWidth += childWidth;
+            maxWidth = Math.max(maxWidth, lineWidth);
+        }
+
+        int width = maxWidth + getPaddingLeft() + getPaddingRight();
+        int height = rows * mChipHeight + Math.max(rows - 1, 0) * mVerticalSpacing + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(resolveSize(Math.max(width, getSuggestedMinimumWidth()), widthMeasureSpec),
+                resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        int maxRight = r - l - getPaddingRight();
+        int left = getPaddingLeft();
+        int top = getPaddingTop();
+        for (int i = 0; i < mChipCount; i++) {
+            View child = getChildAt(i);
+            int childWidth = child.getMeasuredWidth();
+            if (left > getPaddingLeft() && left + childWidth > maxRight) {
+                left = getPaddingLeft();
+                top += mChipHeight + mVerticalSpacing;
+            }
+            child.layout(left, top, left + childWidth, top + mChipHeight);
+            left += childWidth;
+        }
+    }
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        return false;
+    }
+}
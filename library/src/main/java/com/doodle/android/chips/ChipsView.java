@@ -17,22 +17,25 @@
 package com.doodle.android.chips;
 
 import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.Color;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
-import android.support.v4.content.ContextCompat;
 import android.text.Editable;
 import android.text.InputType;
 import android.text.Spannable;
 import android.text.Spanned;
 import android.text.TextWatcher;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.ViewGroup;
@@ -40,13 +43,10 @@ import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputConnection;
 import android.view.inputmethod.InputConnectionWrapper;
 import android.widget.EditText;
-import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
 import android.widget.ScrollView;
-import android.widget.TextView;
 
-import com.bumptech.glide.Glide;
 import com.doodle.android.chips.views.ChipsEditText;
 import com.doodle.android.chips.views.ChipsVerticalLinearLayout;
 
@@ -57,31 +57,23 @@ import java.util.List;
 public class ChipsView extends ScrollView implements ChipsEditText.InputConnectionWrapperInterface {
 
     //<editor-fold desc="Static Fields">
-    private static final String TAG = "ChipsView";
-    private static final int CHIP_HEIGHT = 32; // dp
+    static final int CHIP_HEIGHT = 32; // dp
     private static final int SPACING_TOP = 4; // dp
     private static final int SPACING_BOTTOM = 4; // dp
     public static final int DEFAULT_VERTICAL_SPACING = 1; // dp
     private static final int DEFAULT_MAX_HEIGHT = -1;
-    //</editor-fold>
-
-    //<editor-fold desc="Resources">
-    private int mChipsBgRes = R.drawable.chip_background;
+    private static final int DEFAULT_PREPARED_CHIP_VIEWS = 0;
+    private static final int NO_SELECTION = -1;
+    private static final int MAX_RECYCLED_CHIP_VIEWS = 5;
+    private static final long PREPARE_CHIP_VIEWS_BUDGET = 4; // ms per idle pass
     //</editor-fold>
 
     //<editor-fold desc="Attributes">
     private int mMaxHeight; // px
     private int mVerticalSpacing;
 
-    private int mChipsColor;
-    private int mChipsColorClicked;
-    private int mChipsBgColor;
-    private int mChipsBgColorClicked;
-    private int mChipsTextColor;
-    private int mChipsTextColorClicked;
-    private int mChipsPlaceholderResId;
-    private int mChipsDeleteResId;
-
+    private int mPreparedChipViews = DEFAULT_PREPARED_CHIP_VIEWS;
+    private ChipStyle mChipStyle;
 
     //<editor-fold desc="Private Fields">
     private float mDensity;
@@ -91,7 +83,71 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
     private ChipsVerticalLinearLayout mRootChipsLayout;
     private EditTextListener mEditTextListener;
     private List<Chip> mChipList = new ArrayList<>();
+    // parallel to mChipList, so that the same chip can be added more than once; null until laid out
+    private List<ChipViewHolder> mChipViewHolders = new ArrayList<>();
+    private int mSelectedPosition = NO_SELECTION;
+    private List<GroupChipExpansion> mGroupChipExpansions = new ArrayList<>();
+    private List<ChipViewHolder> mChipViewPool = new ArrayList<>();
+    private int mPendingChipViews;
+    private MessageQueue.IdleHandler mPrepareChipViewsHandler;
+    private Handler mPrepareChipViewsWakeUpHandler;
+    private boolean mChipViewsReleased;
+    private boolean mChipAvatarsReleased;
+    private int mContentWidthMeasureSpec;
+    private int mContentMeasuredWidth;
+    private int mContentHorizontalPadding;
+    private int mContentHeight = -1;
+    private ComponentCallbacks2 mTrimMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trimChipViews(level);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimChipViews(TRIM_MEMORY_COMPLETE);
+        }
+    };
     private Object mCurrentEditTextSpan;
+    private int mCurrentEditTextSpanMargin;
+    private ChipsVerticalLinearLayout.TextLineParams mTextLineParams = new ChipsVerticalLinearLayout.TextLineParams(0, 0);
+    private ChipViewHolder.OnChipClickListener mOnChipClickListener = new ChipViewHolder.OnChipClickListener() {
+        @Override
+        public void onChipClick(ChipViewHolder holder, boolean nameClicked) {
+            mEditText.clearFocus();
+            int position = mChipViewHolders.indexOf(holder);
+            if (position < 0) {
+                return;
+            }
+            // clicking the name of a selected group chip expands it instead of deleting it
+            Chip chip = mChipList.get(position);
+            if (nameClicked && position == mSelectedPosition && chip instanceof GroupChip) {
+                expandGroupChip((GroupChip) chip, holder);
+                return;
+            }
+            onChipInteraction(position, nameClicked);
+        }
+    };
+    private ChipsVerticalLinearLayout.ChipViewProvider mChipViewProvider = new ChipsVerticalLinearLayout.ChipViewProvider() {
+        @Override
+        public View getChipView(int position) {
+            ChipViewHolder holder = mChipViewHolders.get(position);
+            if (holder == null) {
+                if (mChipViewPool.isEmpty()) {
+                    holder = createChipViewHolder();
+                } else {
+                    holder = mChipViewPool.remove(mChipViewPool.size() - 1);
+                }
+                mChipViewHolders.set(position, holder);
+            }
+            holder.bind(mChipList.get(position), position == mSelectedPosition);
+            return holder.getView();
+        }
+    };
     //</editor-fold>
 
     //<editor-fold desc="Constructors">
@@ -125,7 +181,60 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
         if (mMaxHeight != DEFAULT_MAX_HEIGHT) {
             heightMeasureSpec = MeasureSpec.makeMeasureSpec(mMaxHeight, MeasureSpec.AT_MOST);
         }
+
+        // any change of the chips or the text requests a layout of the container, if there was none
+        // the cached content height is still valid and the chip views don't have to be measured again
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        if (mContentHeight >= 0 && widthMeasureSpec == mContentWidthMeasureSpec && horizontalPadding == mContentHorizontalPadding
+                && !mChipsContainer.isLayoutRequested() && !isFillViewport()) {
+            int height = Math.max(mContentHeight + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight());
+            setMeasuredDimension(mContentMeasuredWidth, resolveSizeAndState(height, heightMeasureSpec, 0));
+            return;
+        }
+
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        mContentWidthMeasureSpec = widthMeasureSpec;
+        mContentHorizontalPadding = horizontalPadding;
+        mContentMeasuredWidth = getMeasuredWidthAndState();
+        mContentHeight = mChipsContainer.getMeasuredHeight();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().getApplicationContext().registerComponentCallbacks(mTrimMemoryCallbacks);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getContext().getApplicationContext().unregisterComponentCallbacks(mTrimMemoryCallbacks);
+        releaseChipViewPool();
+        releaseChipAvatars();
+        // the group chips may outlive this view, so they must not keep it
+        for (GroupChipExpansion expansion : mGroupChipExpansions) {
+            expansion.mGroupChip.cancelResolve(expansion);
+        }
+        mGroupChipExpansions.clear();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        // rebuild what was released while in the background
+        if (visibility == VISIBLE && mChipViewsReleased) {
+            mChipViewsReleased = false;
+            mChipAvatarsReleased = false;
+            onChipsChanged(false);
+        } else if (visibility == VISIBLE && mChipAvatarsReleased) {
+            mChipAvatarsReleased = false;
+            for (int i = 0; i < mChipViewHolders.size(); i++) {
+                ChipViewHolder holder = mChipViewHolders.get(i);
+                if (holder != null) {
+                    holder.bind(mChipList.get(i), i == mSelectedPosition);
+                }
+            }
+        }
     }
 
     @Override
@@ -142,33 +251,20 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
         try {
             mMaxHeight = a.getDimensionPixelSize(R.styleable.ChipsView_cv_max_height, DEFAULT_MAX_HEIGHT);
             mVerticalSpacing = a.getDimensionPixelSize(R.styleable.ChipsView_cv_vertical_spacing, (int) (DEFAULT_VERTICAL_SPACING * mDensity));
-            mChipsColor = a.getColor(R.styleable.ChipsView_cv_color,
-                    ContextCompat.getColor(context, R.color.base30));
-            mChipsColorClicked = a.getColor(R.styleable.ChipsView_cv_color_clicked,
-                    ContextCompat.getColor(context, R.color.colorPrimaryDark));
-
-            mChipsBgColor = a.getColor(R.styleable.ChipsView_cv_bg_color,
-                    ContextCompat.getColor(context, R.color.base10));
-            mChipsBgColorClicked = a.getColor(R.styleable.ChipsView_cv_bg_color_clicked,
-                    ContextCompat.getColor(context, R.color.blue));
-
-            mChipsTextColor = a.getColor(R.styleable.ChipsView_cv_text_color,
-                    Color.BLACK);
-            mChipsTextColorClicked = a.getColor(R.styleable.ChipsView_cv_text_color_clicked,
-                    Color.WHITE);
-
-            mChipsPlaceholderResId = a.getResourceId(R.styleable.ChipsView_cv_icon_placeholder,
-                    R.drawable.ic_person_24dp);
-            mChipsDeleteResId = a.getResourceId(R.styleable.ChipsView_cv_icon_delete,
-                    R.drawable.ic_close_24dp);
+            mPreparedChipViews = a.getInt(R.styleable.ChipsView_cv_prepared_chip_views, DEFAULT_PREPARED_CHIP_VIEWS);
         } finally {
             a.recycle();
         }
+        mChipStyle = new ChipStyle(context, attrs);
     }
 
     private void init() {
         mDensity = getResources().getDisplayMetrics().density;
 
+        if (mChipStyle == null) {
+            mChipStyle = new ChipStyle(getContext(), null);
+        }
+
         mChipsContainer = new RelativeLayout(getContext());
         addView(mChipsContainer);
 
@@ -202,6 +298,10 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
         mChipsContainer.addView(mRootChipsLayout);
 
         initListener();
+
+        if (mPreparedChipViews > 0) {
+            prepareChipViews(mPreparedChipViews);
+        }
     }
 
     private void initListener() {
@@ -238,8 +338,12 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
     }
 
     public void addChip(String displayName, Uri avatarUrl, Object data, boolean isIndelible) {
-        Chip chip = new Chip(displayName, avatarUrl, data, isIndelible);
+        addChip(new Chip(displayName, avatarUrl, data, isIndelible));
+    }
+
+    public void addChip(Chip chip) {
         mChipList.add(chip);
+        mChipViewHolders.add(null);
         if (mChipsListener != null) {
             mChipsListener.onChipAdded(chip);
         }
@@ -258,17 +362,77 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
         return Collections.unmodifiableList(mChipList);
     }
 
+    /**
+     * @return the number of chips, where each {@link GroupChip} counts as its members
+     */
+    public int getRecipientCount() {
+        int count = 0;
+        for (int i = 0; i < mChipList.size(); i++) {
+            Chip chip = mChipList.get(i);
+            count += chip instanceof GroupChip ? ((GroupChip) chip).getMemberCount() : 1;
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the group chip with its members, resolving them first if needed. All members are
+     * added within a single relayout.
+     */
+    public void expandGroupChip(GroupChip groupChip) {
+        expandGroupChip(groupChip, null);
+    }
+
     public boolean removeChipBy(Object data) {
         for (int i = 0; i < mChipList.size(); i++) {
             if (mChipList.get(i).mData != null && mChipList.get(i).mData.equals(data)) {
-                mChipList.remove(i);
-                onChipsChanged(true);
+                removeChipAt(i);
+                onChipRemoved(i == mChipList.size(), true);
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Inflates chip views in advance while the main thread is idle, so that the next
+     * {@code expectedChipCount} added chips don't inflate their views on the critical path.
+     * Must be called from the main thread.
+     *
+     * @param expectedChipCount number of chip views which should be ready for upcoming chips
+     */
+    public void prepareChipViews(int expectedChipCount) {
+        mPreparedChipViews = expectedChipCount;
+        mPendingChipViews = Math.max(expectedChipCount - mChipViewPool.size(), 0);
+        if (mPendingChipViews > 0 && mPrepareChipViewsHandler == null) {
+            if (mPrepareChipViewsWakeUpHandler == null) {
+                mPrepareChipViewsWakeUpHandler = new Handler(Looper.myLooper());
+            }
+            mPrepareChipViewsHandler = new MessageQueue.IdleHandler() {
+                @Override
+                public boolean queueIdle() {
+                    // inflate within a small time budget per idle pass to keep the main thread responsive
+                    long deadline = SystemClock.uptimeMillis() + PREPARE_CHIP_VIEWS_BUDGET;
+                    while (mPendingChipViews > 0) {
+                        mChipViewPool.add(createChipViewHolder());
+                        mPendingChipViews--;
+                        if (SystemClock.uptimeMillis() >= deadline) {
+                            break;
+                        }
+                    }
+
+                    if (mPendingChipViews > 0) {
+                        // idle handlers only run again after the next message, so make sure there is one
+                        mPrepareChipViewsWakeUpHandler.sendEmptyMessage(0);
+                        return true;
+                    }
+                    mPrepareChipViewsHandler = null;
+                    return false;
+                }
+            };
+            Looper.myQueue().addIdleHandler(mPrepareChipViewsHandler);
+        }
+    }
+
     public void setChipsListener(ChipsListener chipsListener) {
         this.mChipsListener = chipsListener;
     }
@@ -284,10 +448,8 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
      * rebuild all chips and place them right
      */
     private void onChipsChanged(final boolean moveCursor) {
-        ChipsVerticalLinearLayout.TextLineParams textLineParams = mRootChipsLayout.onChipsChanged(mChipList);
-
-        // if null then run another layout pass
-        if (textLineParams == null) {
+        // if not laid out yet then run another layout pass
+        if (!mRootChipsLayout.onChipsChanged(mChipList.size(), mChipViewProvider, mTextLineParams)) {
             post(new Runnable() {
                 @Override
                 public void run() {
@@ -297,9 +459,30 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
             return;
         }
 
+        onTextLineChanged(mTextLineParams, moveCursor);
+    }
+
+    /**
+     * relayout after a chip was removed, only the last chip's view is removed if possible
+     */
+    private void onChipRemoved(boolean wasLastChip, boolean moveCursor) {
+        if (wasLastChip && mRootChipsLayout.onLastChipRemoved(mTextLineParams)) {
+            onTextLineChanged(mTextLineParams, moveCursor);
+        } else {
+            onChipsChanged(moveCursor);
+        }
+    }
+
+    /**
+     * move the text behind the last chip
+     */
+    private void onTextLineChanged(ChipsVerticalLinearLayout.TextLineParams textLineParams, boolean moveCursor) {
         RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) mEditText.getLayoutParams();
-        params.topMargin = (int) ((SPACING_TOP + textLineParams.row * CHIP_HEIGHT) * mDensity) + textLineParams.row * mVerticalSpacing;
-        mEditText.setLayoutParams(params);
+        int topMargin = (int) ((SPACING_TOP + textLineParams.row * CHIP_HEIGHT) * mDensity) + textLineParams.row * mVerticalSpacing;
+        if (params.topMargin != topMargin) {
+            params.topMargin = topMargin;
+            mEditText.setLayoutParams(params);
+        }
         addLeadingMarginSpan(textLineParams.lineMargin);
         if (moveCursor) {
             mEditText.setSelection(mEditText.length());
@@ -309,9 +492,14 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
     private void addLeadingMarginSpan(int margin) {
         Spannable spannable = mEditText.getText();
         if (mCurrentEditTextSpan != null) {
+            // nothing to do if the span with this margin is still attached
+            if (mCurrentEditTextSpanMargin == margin && spannable.getSpanStart(mCurrentEditTextSpan) >= 0) {
+                return;
+            }
             spannable.removeSpan(mCurrentEditTextSpan);
         }
         mCurrentEditTextSpan = new android.text.style.LeadingMarginSpan.LeadingMarginSpan2.Standard(margin, 0);
+        mCurrentEditTextSpanMargin = margin;
         spannable.setSpan(mCurrentEditTextSpan, 0, 0, Spanned.SPAN_INCLUSIVE_EXCLUSIVE);
 
         mEditText.setText(spannable);
@@ -329,56 +517,191 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
 
     private void selectOrDeleteLastChip() {
         if (mChipList.size() > 0) {
-            onChipInteraction(mChipList.size() - 1);
+            onChipInteraction(mChipList.size() - 1, true);
         }
     }
 
-    private void onChipInteraction(int position) {
-        try {
-            Chip chip = mChipList.get(position);
-            if (chip != null) {
-                onChipInteraction(chip, true);
-            }
-        } catch (IndexOutOfBoundsException e) {
-            Log.e(TAG, "Out of bounds", e);
-        }
-    }
-
-    private void onChipInteraction(Chip chip, boolean nameClicked) {
-        unselectChipsExcept(chip);
-        Log.d(TAG, "onChipInteraction() called with: " + "chip = [" + chip + "], nameClicked = [" + nameClicked + "]");
-        if (chip.isSelected()) {
-            Log.d(TAG, "onChipInteraction: chipIsSelected");
-            mChipList.remove(chip);
+    private void onChipInteraction(int position, boolean nameClicked) {
+        unselectChipsExcept(position);
+        if (position == mSelectedPosition) {
+            Chip chip = removeChipAt(position);
             if (mChipsListener != null) {
-                Log.d(TAG, "onChipInteraction: chiplistener is not null");
                 mChipsListener.onChipDeleted(chip);
             }
-            onChipsChanged(true);
+            onChipRemoved(position == mChipList.size(), true);
             if (nameClicked) {
                 mEditText.setText(chip.getLabel());
                 addLeadingMarginSpan();
                 mEditText.requestFocus();
                 mEditText.setSelection(mEditText.length());
             }
+        } else if (!mChipList.get(position).isIndelible()) {
+            setSelectedPosition(position);
+        }
+    }
+
+    private Chip removeChipAt(int position) {
+        Chip chip = mChipList.remove(position);
+        recycleChipView(mChipViewHolders.remove(position));
+        if (position == mSelectedPosition) {
+            mSelectedPosition = NO_SELECTION;
+        } else if (position < mSelectedPosition) {
+            mSelectedPosition--;
+        }
+        return chip;
+    }
+
+    /**
+     * @param holder the view of the group chip if it was clicked, to find the right position if
+     *               the group chip was added more than once
+     */
+    private void expandGroupChip(GroupChip groupChip, ChipViewHolder holder) {
+        for (GroupChipExpansion expansion : mGroupChipExpansions) {
+            if (expansion.mGroupChip == groupChip && (holder == null || expansion.mHolder == holder)) {
+                // already expanding
+                return;
+            }
+        }
+        GroupChipExpansion expansion = new GroupChipExpansion(groupChip, holder);
+        mGroupChipExpansions.add(expansion);
+        groupChip.resolveMembers(expansion);
+    }
+
+    private void replaceGroupChip(GroupChip groupChip, ChipViewHolder holder, List<Chip> members) {
+        int position;
+        if (holder != null) {
+            position = mChipViewHolders.indexOf(holder);
+            if (position < 0 || mChipList.get(position) != groupChip) {
+                // the clicked group chip was removed or its view reused while resolving
+                return;
+            }
         } else {
-            chip.setSelected(true);
-            onChipsChanged(false);
+            position = indexOfChip(groupChip);
+        }
+        if (position < 0) {
+            // removed while resolving
+            return;
+        }
+        removeChipAt(position);
+        mChipList.addAll(position, members);
+        mChipViewHolders.addAll(position, Collections.<ChipViewHolder>nCopies(members.size(), null));
+        if (mSelectedPosition >= position) {
+            mSelectedPosition += members.size();
         }
+        if (mChipsListener != null) {
+            mChipsListener.onChipDeleted(groupChip);
+            for (Chip member : members) {
+                mChipsListener.onChipAdded(member);
+            }
+        }
+        onChipsChanged(true);
     }
 
-    private void unselectChipsExcept(Chip rootChip) {
-        for (Chip chip : mChipList) {
-            if (chip != rootChip) {
-                chip.setSelected(false);
+    private int indexOfChip(Chip chip) {
+        for (int i = 0; i < mChipList.size(); i++) {
+            if (mChipList.get(i) == chip) {
+                return i;
             }
         }
-        onChipsChanged(false);
+        return -1;
+    }
+
+    /**
+     * the selection only changes the chips' view states, no relayout is needed
+     */
+    private void setSelectedPosition(int position) {
+        ChipViewHolder holder = mSelectedPosition != NO_SELECTION ? mChipViewHolders.get(mSelectedPosition) : null;
+        if (holder != null) {
+            holder.bind(mChipList.get(mSelectedPosition), false);
+        }
+        mSelectedPosition = position;
+        holder = position != NO_SELECTION ? mChipViewHolders.get(position) : null;
+        if (holder != null) {
+            holder.bind(mChipList.get(position), true);
+        }
+    }
+
+    private void unselectChipsExcept(int position) {
+        if (mSelectedPosition != position) {
+            setSelectedPosition(NO_SELECTION);
+        }
     }
 
     private void unselectAllChips() {
-        unselectChipsExcept(null);
+        unselectChipsExcept(NO_SELECTION);
+    }
+
+    /**
+     * release chip resources depending on the memory pressure, they are rebuilt once the
+     * view becomes visible again. Views and avatars on screen are never released.
+     */
+    private void trimChipViews(int level) {
+        boolean isHidden = getWindowVisibility() != VISIBLE;
+        switch (level) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+                releaseChipViewPool();
+                break;
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+            case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
+                releaseChipViewPool();
+                if (isHidden) {
+                    releaseChipAvatars();
+                }
+                break;
+            case ComponentCallbacks2.TRIM_MEMORY_MODERATE:
+            case ComponentCallbacks2.TRIM_MEMORY_COMPLETE:
+                releaseChipViewPool();
+                if (isHidden) {
+                    releaseChipAvatars();
+                    releaseChipViews();
+                }
+                break;
+            default:
+                // TRIM_MEMORY_RUNNING_MODERATE and TRIM_MEMORY_UI_HIDDEN don't indicate memory pressure
+                break;
+        }
+    }
+
+    /**
+     * prepared and recycled views
+     */
+    private void releaseChipViewPool() {
+        mChipViewPool.clear();
+        if (mPrepareChipViewsHandler != null) {
+            Looper.myQueue().removeIdleHandler(mPrepareChipViewsHandler);
+            mPrepareChipViewsHandler = null;
+        }
+        mPendingChipViews = 0;
+    }
+
+    private void releaseChipAvatars() {
+        for (ChipViewHolder holder : mChipViewHolders) {
+            if (holder != null && holder.releaseAvatar()) {
+                mChipAvatarsReleased = true;
+            }
+        }
+    }
+
+    private void releaseChipViews() {
+        mRootChipsLayout.clearChipsViews();
+        Collections.fill(mChipViewHolders, null);
+        mChipViewsReleased = true;
+        mContentHeight = -1;
+    }
+
+    private ChipViewHolder createChipViewHolder() {
+        ChipViewHolder holder = new ChipViewHolder(getContext(), mChipStyle);
+        holder.setOnChipClickListener(mOnChipClickListener);
+        return holder;
+    }
+
+    private void recycleChipView(ChipViewHolder holder) {
+        if (holder != null && mChipViewPool.size() < Math.max(mPreparedChipViews, MAX_RECYCLED_CHIP_VIEWS)) {
+            holder.unbind();
+            mChipViewPool.add(holder);
+        }
     }
+
     //</editor-fold>
 
     //<editor-fold desc="InputConnectionWrapperInterface Implementation">
@@ -469,148 +792,97 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
         public boolean deleteSurroundingText(int beforeLength, int afterLength) {
             // magic: in latest Android, deleteSurroundingText(1, 0) will be called for backspace
             if (mEditText.length() == 0 && beforeLength == 1 && afterLength == 0) {
-                // backspace
-                return sendKeyEvent(new KeyEvent(KeyEvent.ACTION_DOWN, KeyEvent.KEYCODE_DEL))
-                        && sendKeyEvent(new KeyEvent(KeyEvent.ACTION_UP, KeyEvent.KEYCODE_DEL));
+                // backspace, handled directly instead of sending new key events
+                selectOrDeleteLastChip();
+                return true;
             }
 
             return super.deleteSurroundingText(beforeLength, afterLength);
         }
     }
 
-    public class Chip implements OnClickListener {
+    /**
+     * A pending expansion of a group chip, dropped if the view is detached before the members are
+     * resolved.
+     */
+    private class GroupChipExpansion implements MembersCallback {
 
-        private static final int MAX_LABEL_LENGTH = 30;
+        private final GroupChip mGroupChip;
+        private final ChipViewHolder mHolder;
 
-        private String mLabel;
-        private final Uri mPhotoUri;
-        private final Object mData;
-        private final boolean mIsIndelible;
+        GroupChipExpansion(GroupChip groupChip, ChipViewHolder holder) {
+            this.mGroupChip = groupChip;
+            this.mHolder = holder;
+        }
 
-        private RelativeLayout mView;
-        private View mIconWrapper;
-        private TextView mTextView;
+        @Override
+        public void onMembersResolved(final List<Chip> members) {
+            // members may be resolved on any thread
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mGroupChipExpansions.remove(GroupChipExpansion.this) && getWindowToken() != null) {
+                        replaceGroupChip(mGroupChip, mHolder, members);
+                    }
+                }
+            });
+        }
 
-        private ImageView mAvatarView;
-        private ImageView mPersonIcon;
-        private ImageView mCloseIcon;
+        @Override
+        public void onMembersFailed() {
+            // the group chip stays as it is, expanding it can be retried
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    mGroupChipExpansions.remove(GroupChipExpansion.this);
+                }
+            });
+        }
+    }
 
-        private ImageView mErrorIcon;
+    /**
+     * Immutable chip data. It neither references the {@link ChipsView} nor any views and can
+     * therefore be kept beyond the lifetime of the view, e.g. across configuration changes.
+     */
+    public static class Chip {
 
-        private boolean mIsSelected = false;
+        private static final int MAX_LABEL_LENGTH = 30;
+
+        private final String mLabel;
+        private final Uri mPhotoUri;
+        private final Object mData;
+        private final boolean mIsIndelible;
 
         public Chip(String label, Uri photoUri, Object data) {
             this(label, photoUri, data, false);
         }
 
         public Chip(String label, Uri photoUri, Object data, boolean isIndelible) {
+            if (label.length() > MAX_LABEL_LENGTH) {
+                label = label.substring(0, MAX_LABEL_LENGTH) + "...";
+            }
             this.mLabel = label;
             this.mPhotoUri = photoUri;
             this.mData = data;
             this.mIsIndelible = isIndelible;
-
-            if (mLabel.length() > MAX_LABEL_LENGTH) {
-                mLabel = mLabel.substring(0, MAX_LABEL_LENGTH) + "...";
-            }
         }
 
         public String getLabel(){
             return mLabel;
         }
 
-        public View getView() {
-            if (mView == null) {
-                mView = (RelativeLayout) inflate(getContext(), R.layout.chips_view, null);
-                mView.setLayoutParams(new RelativeLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, (int) (CHIP_HEIGHT * mDensity)));
-                mAvatarView = (ImageView) mView.findViewById(R.id.ri_ch_avatar);
-                mIconWrapper = mView.findViewById(R.id.rl_ch_avatar);
-                mTextView = (TextView) mView.findViewById(R.id.tv_ch_name);
-                mPersonIcon = (ImageView) mView.findViewById(R.id.iv_ch_person);
-                mCloseIcon = (ImageView) mView.findViewById(R.id.iv_ch_close);
-
-                mErrorIcon = (ImageView) mView.findViewById(R.id.iv_ch_error);
-
-                // set inital res & attrs
-                mView.setBackgroundResource(mChipsBgRes);
-                mView.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        mView.getBackground().setColorFilter(mChipsBgColor, PorterDuff.Mode.SRC_ATOP);
-                    }
-                });
-                mIconWrapper.setBackgroundResource(R.drawable.circle);
-                mTextView.setTextColor(mChipsTextColor);
-
-                // set icon resources
-                mPersonIcon.setBackgroundResource(mChipsPlaceholderResId);
-                mCloseIcon.setBackgroundResource(mChipsDeleteResId);
-
-
-                mView.setOnClickListener(this);
-                mIconWrapper.setOnClickListener(this);
-            }
-            updateViews();
-            return mView;
-        }
-
-        private void updateViews() {
-            mTextView.setText(mLabel);
-            if (mPhotoUri != null) {
-                Glide.with(getContext())
-                        .load(mPhotoUri)
-                        .into(mAvatarView);
-                //TODO on glide success
-                mPersonIcon.setVisibility(View.INVISIBLE);
-            }
-            if (isSelected()) {
-
-                mView.getBackground().setColorFilter(mChipsBgColorClicked, PorterDuff.Mode.SRC_ATOP);
-                mTextView.setTextColor(mChipsTextColorClicked);
-                mIconWrapper.getBackground().setColorFilter(mChipsColorClicked, PorterDuff.Mode.SRC_ATOP);
-
-                mPersonIcon.animate().alpha(0.0f).setDuration(200).start();
-                mAvatarView.animate().alpha(0.0f).setDuration(200).start();
-                mCloseIcon.animate().alpha(1f).setDuration(200).setStartDelay(100).start();
-
-            } else {
-
-                mErrorIcon.setVisibility(View.GONE);
-
-                mView.getBackground().setColorFilter(mChipsBgColor, PorterDuff.Mode.SRC_ATOP);
-                mTextView.setTextColor(mChipsTextColor);
-                mIconWrapper.getBackground().setColorFilter(mChipsColor, PorterDuff.Mode.SRC_ATOP);
-
-                mPersonIcon.animate().alpha(0.3f).setDuration(200).setStartDelay(100).start();
-                mAvatarView.animate().alpha(1f).setDuration(200).setStartDelay(100).start();
-                mCloseIcon.animate().alpha(0.0f).setDuration(200).start();
-            }
-        }
-
-        @Override
-        public void onClick(View v) {
-            mEditText.clearFocus();
-            if (v.getId() == mView.getId()) {
-                onChipInteraction(this, true);
-            } else {
-                onChipInteraction(this, false);
-            }
-        }
-
-        public boolean isSelected() {
-            return mIsSelected;
-        }
-
-        public void setSelected(boolean isSelected) {
-            if (mIsIndelible) {
-                return;
-            }
-            this.mIsSelected = isSelected;
+        public Uri getPhotoUri() {
+            return mPhotoUri;
         }
 
         public Object getData() {
             return mData;
         }
 
+        public boolean isIndelible() {
+            return mIsIndelible;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -639,6 +911,132 @@ public class ChipsView extends ScrollView implements ChipsEditText.InputConnecti
         }
     }
 
+    /**
+     * A single chip standing for a list of members, e.g. a distribution list. The members are only
+     * resolved on demand via the {@link MemberResolver}, until then the group is shown as one chip.
+     * The chip keeps a reference to its resolver, see {@link MemberResolver} to keep it safe for
+     * long-lived holders.
+     */
+    public static class GroupChip extends Chip {
+
+        private final int mMemberCount;
+        private final MemberResolver mMemberResolver;
+
+        private final Object mLock = new Object();
+        private List<Chip> mMembers;
+        private List<MembersCallback> mPendingCallbacks = new ArrayList<>();
+        private boolean mIsResolving;
+
+        /**
+         * @param memberCount the expected number of members, used until they are resolved
+         */
+        public GroupChip(String label, Uri photoUri, Object data, int memberCount, MemberResolver memberResolver) {
+            this(label, photoUri, data, false, memberCount, memberResolver);
+        }
+
+        public GroupChip(String label, Uri photoUri, Object data, boolean isIndelible, int memberCount, MemberResolver memberResolver) {
+            super(label, photoUri, data, isIndelible);
+            this.mMemberCount = memberCount;
+            this.mMemberResolver = memberResolver;
+        }
+
+        public int getMemberCount() {
+            synchronized (mLock) {
+                return mMembers != null ? mMembers.size() : mMemberCount;
+            }
+        }
+
+        /**
+         * @return the resolved members or null if they haven't been resolved yet
+         */
+        public List<Chip> getMembers() {
+            synchronized (mLock) {
+                return mMembers;
+            }
+        }
+
+        /**
+         * Resolves the members once, later calls get the cached members.
+         */
+        public void resolveMembers(MembersCallback callback) {
+            List<Chip> members;
+            synchronized (mLock) {
+                members = mMembers;
+                if (members == null) {
+                    mPendingCallbacks.add(callback);
+                    if (mIsResolving) {
+                        return;
+                    }
+                    mIsResolving = true;
+                }
+            }
+            if (members != null) {
+                callback.onMembersResolved(members);
+                return;
+            }
+
+            mMemberResolver.resolveMembers(this, new MembersCallback() {
+                @Override
+                public void onMembersResolved(List<Chip> resolvedMembers) {
+                    List<Chip> members = Collections.unmodifiableList(new ArrayList<>(resolvedMembers));
+                    List<MembersCallback> callbacks;
+                    synchronized (mLock) {
+                        mMembers = members;
+                        mIsResolving = false;
+                        callbacks = mPendingCallbacks;
+                        mPendingCallbacks = new ArrayList<>();
+                    }
+                    for (MembersCallback callback : callbacks) {
+                        callback.onMembersResolved(members);
+                    }
+                }
+
+                @Override
+                public void onMembersFailed() {
+                    // reset, so that the members can be resolved again later
+                    List<MembersCallback> callbacks;
+                    synchronized (mLock) {
+                        mIsResolving = false;
+                        callbacks = mPendingCallbacks;
+                        mPendingCallbacks = new ArrayList<>();
+                    }
+                    for (MembersCallback callback : callbacks) {
+                        callback.onMembersFailed();
+                    }
+                }
+            });
+        }
+
+        /**
+         * Stops notifying the given callback, e.g. when its view goes away. A running resolution
+         * isn't aborted, its members are still cached.
+         */
+        public void cancelResolve(MembersCallback callback) {
+            synchronized (mLock) {
+                mPendingCallbacks.remove(callback);
+            }
+        }
+    }
+
+    /**
+     * Resolves the members of a {@link GroupChip}. It is held by the group chip, so it must not
+     * capture a {@link Context} such as an Activity, e.g. don't use an anonymous or inner class of
+     * an Activity or Fragment, otherwise the chip leaks it.
+     */
+    public interface MemberResolver {
+        /**
+         * Resolve the group's members, the callback may be called on any thread. Exactly one of
+         * its methods has to be called.
+         */
+        void resolveMembers(GroupChip groupChip, MembersCallback callback);
+    }
+
+    public interface MembersCallback {
+        void onMembersResolved(List<Chip> members);
+
+        void onMembersFailed();
+    }
+
     public interface ChipsListener {
         void onChipAdded(Chip chip);
 
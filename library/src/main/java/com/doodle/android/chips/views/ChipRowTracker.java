@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 Doodle AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.doodle.android.chips.views;
+
+/**
+ * Keeps track of the row and the row's width after each chip. Removing the last chip restores the
+ * previous state without iterating or allocating, which keeps repeated backspaces cheap.
+ */
+class ChipRowTracker {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] mRows = new int[INITIAL_CAPACITY];
+    private int[] mRowWidths = new int[INITIAL_CAPACITY];
+    private int mSize;
+
+    /**
+     * @return true if the chip doesn't fit into the current row and starts a new one
+     */
+    boolean add(int chipWidth, int maxWidth) {
+        int row = getRow();
+        int rowWidth = getRowWidth();
+        boolean newRow = rowWidth + chipWidth > maxWidth;
+        if (newRow) {
+            row++;
+            rowWidth = 0;
+        }
+        rowWidth += chipWidth;
+
+        if (mSize == mRows.length) {
+            int[] rows = new int[mSize * 2];
+            int[] rowWidths = new int[mSize * 2];
+            System.arraycopy(mRows, 0, rows, 0, mSize);
+            System.arraycopy(mRowWidths, 0, rowWidths, 0, mSize);
+            mRows = rows;
+            mRowWidths = rowWidths;
+        }
+        mRows[mSize] = row;
+        mRowWidths[mSize] = rowWidth;
+        mSize++;
+        return newRow;
+    }
+
+    void removeLast() {
+        if (mSize > 0) {
+            mSize--;
+        }
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the row of the last chip
+     */
+    int getRow() {
+        return mSize == 0 ? 0 : mRows[mSize - 1];
+    }
+
+    /**
+     * @return the width of all chips in the last row
+     */
+    int getRowWidth() {
+        return mSize == 0 ? 0 : mRowWidths[mSize - 1];
+    }
+
+    /**
+     * fills the text's row and leading margin, the text moves to a new row if there is not enough space left
+     */
+    void getTextLineParams(int maxWidth, ChipsVerticalLinearLayout.TextLineParams outParams) {
+        int row = getRow();
+        int rowWidth = getRowWidth();
+        if (maxWidth - rowWidth < maxWidth * 0.1f) {
+            rowWidth = 0;
+            row++;
+        }
+        outParams.row = row;
+        outParams.lineMargin = rowWidth;
+    }
+}
@@ -20,14 +20,14 @@ import android.content.Context;
 import android.view.View;
 import android.widget.LinearLayout;
 
-import com.doodle.android.chips.ChipsView;
-
 import java.util.ArrayList;
 import java.util.List;
 
 public class ChipsVerticalLinearLayout extends LinearLayout {
 
     private List<LinearLayout> mLineLayouts = new ArrayList<>();
+    private ChipRowTracker mRowTracker = new ChipRowTracker();
+    private int mChipsWidth;
 
     private float mDensity;
     private int mRowSpacing;
@@ -45,42 +45,62 @@ public class ChipsVerticalLinearLayout extends LinearLayout {
         setOrientation(VERTICAL);
     }
 
-    public TextLineParams onChipsChanged(List<ChipsView.Chip> chips) {
+    /**
+     * Rebuilds all rows.
+     *
+     * @param outParams receives the text's new position
+     * @return false if the layout has no width yet and another layout pass is needed
+     */
+    public boolean onChipsChanged(int chipCount, ChipViewProvider chipViewProvider, TextLineParams outParams) {
         clearChipsViews();
 
         int width = getWidth();
         if (width == 0) {
-            return null;
+            return false;
         }
-        int widthSum = 0;
-        int rowCounter = 0;
 
+        mChipsWidth = width;
         LinearLayout ll = createHorizontalView();
 
-        for (ChipsView.Chip chip : chips) {
-            View view = chip.getView();
+        for (int i = 0; i < chipCount; i++) {
+            View view = chipViewProvider.getChipView(i);
             view.measure(MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED), MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
 
             // if width exceed current width. create a new LinearLayout
-            if (widthSum + view.getMeasuredWidth() > width) {
-                rowCounter++;
-                widthSum = 0;
+            if (mRowTracker.add(view.getMeasuredWidth(), width)) {
                 ll = createHorizontalView();
             }
 
-            widthSum += view.getMeasuredWidth();
             ll.addView(view);
         }
 
-        // check if there is enough space left
-        if (width - widthSum < width * 0.1f) {
-            widthSum = 0;
-            rowCounter++;
+        mRowTracker.getTextLineParams(width, outParams);
+        return true;
+    }
+
+    /**
+     * Removes only the last chip's view instead of rebuilding all rows.
+     *
+     * @param outParams receives the text's new position
+     * @return false if the chips have to be rebuilt instead
+     */
+    public boolean onLastChipRemoved(TextLineParams outParams) {
+        int width = getWidth();
+        if (width == 0 || width != mChipsWidth || mRowTracker.size() == 0) {
+            return false;
         }
-        if (width == 0) {
-            rowCounter = 0;
+
+        LinearLayout lastRow = mLineLayouts.get(mRowTracker.getRow());
+        lastRow.removeViewAt(lastRow.getChildCount() - 1);
+        mRowTracker.removeLast();
+
+        // drop the rows which became empty
+        for (int row = mLineLayouts.size() - 1; row > mRowTracker.getRow(); row--) {
+            removeView(mLineLayouts.remove(row));
         }
-        return new TextLineParams(rowCounter, widthSum);
+
+        mRowTracker.getTextLineParams(width, outParams);
+        return true;
     }
 
     private LinearLayout createHorizontalView() {
@@ -92,14 +112,19 @@ public class ChipsVerticalLinearLayout extends LinearLayout {
         return ll;
     }
 
-    private void clearChipsViews() {
+    public void clearChipsViews() {
         for (LinearLayout linearLayout : mLineLayouts) {
             linearLayout.removeAllViews();
         }
         mLineLayouts.clear();
+        mRowTracker.clear();
         removeAllViews();
     }
 
+    public interface ChipViewProvider {
+        View getChipView(int position);
+    }
+
     public static class TextLineParams {
         public int row;
         public int lineMargin;
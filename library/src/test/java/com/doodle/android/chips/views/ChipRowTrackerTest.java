@@ -0,0 +1,54 @@
+package com.doodle.android.chips.views;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChipRowTrackerTest {
+
+    private static final int MAX_WIDTH = 1000;
+    private static final int CHIP_WIDTH = 300;
+
+    @Test
+    public void add_wrapsIntoNewRow() throws Exception {
+        ChipRowTracker tracker = new ChipRowTracker();
+
+        assertFalse(tracker.add(CHIP_WIDTH, MAX_WIDTH));
+        assertFalse(tracker.add(CHIP_WIDTH, MAX_WIDTH));
+        assertFalse(tracker.add(CHIP_WIDTH, MAX_WIDTH));
+        assertTrue(tracker.add(CHIP_WIDTH, MAX_WIDTH));
+
+        assertEquals(1, tracker.getRow());
+        assertEquals(CHIP_WIDTH, tracker.getRowWidth());
+    }
+
+    @Test
+    public void removeLast_restoresPreviousRow() throws Exception {
+        ChipRowTracker tracker = new ChipRowTracker();
+        for (int i = 0; i < 4; i++) {
+            tracker.add(CHIP_WIDTH, MAX_WIDTH);
+        }
+
+        tracker.removeLast();
+
+        assertEquals(3, tracker.size());
+        assertEquals(0, tracker.getRow());
+        assertEquals(3 * CHIP_WIDTH, tracker.getRowWidth());
+    }
+
+    @Test
+    public void getTextLineParams_movesTextToNextRowIfFull() throws Exception {
+        ChipRowTracker tracker = new ChipRowTracker();
+        ChipsVerticalLinearLayout.TextLineParams params = new ChipsVerticalLinearLayout.TextLineParams(0, 0);
+
+        tracker.add(CHIP_WIDTH, MAX_WIDTH);
+        tracker.getTextLineParams(MAX_WIDTH, params);
+        assertEquals(0, params.row);
+        assertEquals(CHIP_WIDTH, params.lineMargin);
+
+        tracker.add(MAX_WIDTH - CHIP_WIDTH, MAX_WIDTH);
+        tracker.getTextLineParams(MAX_WIDTH, params);
+        assertEquals(1, params.row);
+        assertEquals(0, params.lineMargin);
+    }
+}